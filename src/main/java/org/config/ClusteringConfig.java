@@ -0,0 +1,85 @@
+package org.config;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration of the clustering stage that groups models starting from the
+ * similarity results computed by the ecl stage.
+ */
+@Getter
+@Setter
+public class ClusteringConfig {
+
+    private final static String clusteringConfigFilePath = "/clustering.config.json";
+
+    private final static Logger logger = LogManager.getLogger(ClusteringConfig.class);
+
+    /**
+     * Path of the similarity results, a .csv matrix or a binary packed matrix
+     * (any other extension)
+     */
+    private String inputFilePath;
+    /**
+     * True if the input values are similarities in [0,1], false if they are
+     * already distances
+     */
+    private boolean valuesAreSimilarities;
+    private String outputFolderPath;
+    /**
+     * Clustering methods to run: single, complete, threshold
+     */
+    private List<String> methods;
+    /**
+     * Number of worker threads, 0 means all the available processors
+     */
+    private int parallelism;
+
+    public ClusteringConfig() throws Exception {
+        JSONObject clusteringConfiguration = readClusteringConfigurationFile();
+
+        this.inputFilePath = clusteringConfiguration.getString("inputFilePath");
+        this.valuesAreSimilarities = clusteringConfiguration.getBoolean("valuesAreSimilarities");
+        this.outputFolderPath = clusteringConfiguration.getString("outputFolderPath");
+
+        this.methods = new ArrayList<>();
+        JSONArray methodsArray = clusteringConfiguration.getJSONArray("methods");
+        for (int i = 0; i < methodsArray.length(); i++) {
+            this.methods.add(methodsArray.getString(i));
+        }
+
+        int configuredParallelism = clusteringConfiguration.getInt("parallelism");
+        this.parallelism = configuredParallelism > 0 ? configuredParallelism
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Read configuration file from the specified location
+     *
+     * @return
+     * @throws Exception
+     */
+    private static JSONObject readClusteringConfigurationFile() throws Exception {
+
+        logger.debug("ClusteringConfig@readClusteringConfigurationFile()-> Reading configuration file");
+        // read config file from config path
+        InputStream inputStream = ClusteringConfig.class.getResourceAsStream(clusteringConfigFilePath);
+        if (inputStream == null) {
+            throw new NullPointerException("Cannot find resource file " + clusteringConfigFilePath);
+        }
+        JSONTokener tokener = new JSONTokener(inputStream);
+        JSONObject configuration = new JSONObject(tokener);
+        return configuration;
+    }
+
+}
@@ -28,6 +28,8 @@ public class Config {
     private String rootPath;
     private String outputFolderName;
     private String ecoreRequiredFilesFolder;
+    private String sharedLibrariesFolder;
+    private int conversionParallelism;
     private List<String> archivesForSearching;
     private List<String> extensionsForSearching;
     private List<String> externalResources;
@@ -59,6 +61,12 @@ public class Config {
         this.outputFolderName = config.getString("outputFolderName");
         // set ecore files folder
         this.ecoreRequiredFilesFolder = config.getString("ecoreRequiredFilesFolder");
+        // set folder of the aadl libraries shared by all the projects
+        this.sharedLibrariesFolder = config.getString("sharedLibrariesFolder");
+        // set number of projects converted in parallel, 0 means all the available processors
+        int configuredParallelism = config.getInt("conversionParallelism");
+        this.conversionParallelism = configuredParallelism > 0 ? configuredParallelism
+                : Runtime.getRuntime().availableProcessors();
         // set cache for discovering
         this.timeCacheForDiscoveringSearchOverFilesInSeconds = config
                 .getInt("timeCacheForDiscoveringSearchOverFilesInSeconds");
@@ -231,6 +239,18 @@ public class Config {
 
     }
 
+    /**
+     * Write the conversion logs in the output folder as conversion-logs.json
+     * 
+     * @throws IOException
+     */
+    public void saveConversionLogs() throws IOException {
+        Path outputPathFolder = Paths.get(this.rootPath, this.outputFolderName).toAbsolutePath();
+        Files.createDirectories(outputPathFolder);
+        Files.writeString(outputPathFolder.resolve("conversion-logs.json"),
+                new JSONArray(this.conversionLogs).toString(2));
+    }
+
     /*
      * 
      * Cache Area
@@ -22,6 +22,7 @@ public class EclConfig {
     private String eclScriptName;
     private String csvFileFolderPath;
     private String csvFileName;
+    private String binaryFileName;
     private EclParams eclParams;
     
 
@@ -32,6 +33,8 @@ public class EclConfig {
         this.eclScriptName = eclConfiguration.getString("eclScriptName");
         this.csvFileFolderPath = eclConfiguration.getString("csvFileFolderPath");
         this.csvFileName = eclConfiguration.getString("csvFileName");
+        // distances streamed pair by pair, in the csvFileFolderPath folder
+        this.binaryFileName = eclConfiguration.getString("binaryFileName");
 
         // Configure ecl params
         JSONObject eclParamsObject = eclConfiguration.getJSONObject("eclParams");
@@ -0,0 +1,482 @@
+package org.process.models.aadl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.config.Config;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.xtext.resource.XtextResourceSet;
+import org.osate.aadl2.AadlPackage;
+import org.osate.aadl2.Classifier;
+import org.osate.aadl2.SystemImplementation;
+import org.osate.aadl2.instantiation.InstantiateModel;
+import org.osate.xtext.aadl2.Aadl2StandaloneSetup;
+import org.utils.SearchFileTraversal;
+import org.utils.Utils;
+
+import com.google.inject.Injector;
+
+/**
+ * Convert the aadl sources in instance models (.aaxl2), one project at a time
+ * for each worker. A project is a folder directly under one of the archives for
+ * searching, its files are loaded together so that references between them can
+ * be resolved.
+ *
+ * A project is converted again when any of its files or of the shared
+ * libraries changed, after removing the instance models of its previous
+ * conversion.
+ *
+ * Each worker keeps its own resource set in which the shared aadl libraries are
+ * loaded and resolved once, between two projects only the project resources are
+ * removed. Resource sets are not thread safe, so they are never shared between
+ * workers.
+ */
+public class BatchConverter {
+
+    private final static Logger logger = LogManager.getLogger(BatchConverter.class);
+
+    private final static String instanceModelExtension = "aaxl2";
+
+    private final Config config;
+
+    private final Injector injector;
+
+    private final Path xmiFolderPath;
+
+    private final Set<URI> sharedLibraryURIs;
+
+    /**
+     * Hash of the shared libraries, part of the hash of every project
+     */
+    private final String sharedLibrariesHash;
+
+    /**
+     * Logs of the previous conversion indexed by pathAADLFile
+     */
+    private final Map<String, Map<String, Object>> previousLogs;
+
+    private final ThreadLocal<XtextResourceSet> workerResourceSet = ThreadLocal
+            .withInitial(this::createWorkerResourceSet);
+
+    public BatchConverter(Config config) throws Exception {
+        this.config = config;
+        this.injector = new Aadl2StandaloneSetup().createInjectorAndDoEMFRegistration();
+        this.xmiFolderPath = Paths.get(config.getRootPath(), config.getOutputFolderName(), "xmi").toAbsolutePath();
+
+        this.sharedLibraryURIs = new HashSet<>();
+        StringBuilder sharedLibrariesHashes = new StringBuilder();
+        // discoverModelFromPath returns the paths sorted, the hash does not depend on
+        // the order of the file system
+        for (String libraryPath : Utils.discoverModelFromPath(config.getSharedLibrariesFolder(),
+                config.getExtensionsForSearching())) {
+            Path library = Paths.get(libraryPath);
+            this.sharedLibraryURIs.add(toURI(library));
+            sharedLibrariesHashes.append(toURI(library)).append(':').append(Utils.sha256(library)).append('\n');
+        }
+        this.sharedLibrariesHash = Utils.sha256(sharedLibrariesHashes.toString());
+
+        this.previousLogs = new HashMap<>();
+        for (Map<String, Object> log : config.getConversionLogs()) {
+            this.previousLogs.put(String.valueOf(log.get("pathAADLFile")), log);
+        }
+    }
+
+    /**
+     * Convert the source files, projects are converted in parallel. A project
+     * that fails is reported in the logs of its files and does not stop the
+     * others.
+     *
+     * @param sourcePaths
+     * @return the conversion log of each file, in the same order of the sources
+     * @throws Exception
+     */
+    public List<Map<String, Object>> convert(List<String> sourcePaths) throws Exception {
+        Map<Path, List<Path>> projects = this.groupByProject(sourcePaths);
+        logger.info("BatchConverter@convert() -> Converting " + sourcePaths.size() + " files in " + projects.size()
+                + " projects with " + this.config.getConversionParallelism() + " workers");
+
+        Set<String> sourceURIs = new HashSet<>();
+        for (String sourcePath : sourcePaths) {
+            sourceURIs.add(toURI(Paths.get(sourcePath)).toString());
+        }
+        // the instance models of the sources that no longer exist are removed
+        for (Map.Entry<String, Map<String, Object>> previousLog : this.previousLogs.entrySet()) {
+            if (!sourceURIs.contains(previousLog.getKey())) {
+                try {
+                    this.deleteInstanceModels(previousLog.getValue());
+                } catch (Exception e) {
+                    logger.error("BatchConverter@convert() -> Cannot delete the instance models of "
+                            + previousLog.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.config.getConversionParallelism());
+        try {
+            List<Map.Entry<Path, List<Path>>> projectList = new ArrayList<>(projects.entrySet());
+            List<Future<List<Map<String, Object>>>> futures = new ArrayList<>();
+            for (Map.Entry<Path, List<Path>> project : projectList) {
+                futures.add(executor.submit(() -> this.convertProject(project.getKey(), project.getValue())));
+            }
+
+            Map<String, Map<String, Object>> logsBySource = new HashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                List<Map<String, Object>> projectLogs;
+                try {
+                    projectLogs = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    projectLogs = this.failedProjectLogs(projectList.get(i).getKey(), projectList.get(i).getValue(),
+                            e.getCause());
+                }
+                for (Map<String, Object> log : projectLogs) {
+                    logsBySource.put(String.valueOf(log.get("pathAADLFile")), log);
+                }
+            }
+
+            List<Map<String, Object>> conversionLogs = new ArrayList<>();
+            for (String sourcePath : sourcePaths) {
+                conversionLogs.add(logsBySource.get(toURI(Paths.get(sourcePath)).toString()));
+            }
+            return conversionLogs;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Group the sources by the first folder under the archive that contains them,
+     * files directly in the archive are grouped in the archive itself
+     *
+     * @param sourcePaths
+     * @return Map<Path, List<Path>>
+     */
+    private Map<Path, List<Path>> groupByProject(List<String> sourcePaths) {
+        List<Path> archives = this.config.getArchivesForSearching().stream()
+                .map(archive -> Paths.get(archive).toAbsolutePath().normalize()).collect(Collectors.toList());
+
+        Map<Path, List<Path>> projects = new LinkedHashMap<>();
+        for (String sourcePath : sourcePaths) {
+            Path source = Paths.get(sourcePath).toAbsolutePath().normalize();
+            Path project = source.getParent();
+            for (Path archive : archives) {
+                if (source.startsWith(archive) && source.getNameCount() > archive.getNameCount() + 1) {
+                    project = archive.resolve(source.getName(archive.getNameCount()));
+                    break;
+                }
+            }
+            projects.computeIfAbsent(project, key -> new ArrayList<>()).add(source);
+        }
+        return projects;
+    }
+
+    /**
+     * Convert the files of a project. An instance model depends on the other
+     * files of its project and on the shared libraries, so the whole project is
+     * skipped only if none of them changed since the previous conversion,
+     * otherwise all its files are converted again.
+     *
+     * @param projectPath
+     * @param sources
+     * @return List<Map<String, Object>>
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> convertProject(Path projectPath, List<Path> sources) {
+        try {
+            Map<Path, String> sourceHashes = new LinkedHashMap<>();
+            StringBuilder projectHashes = new StringBuilder(this.sharedLibrariesHash).append('\n');
+            for (Path source : sources) {
+                String sourceHash = Utils.sha256(source);
+                sourceHashes.put(source, sourceHash);
+                projectHashes.append(toURI(source)).append(':').append(sourceHash).append('\n');
+            }
+            String projectHash = Utils.sha256(projectHashes.toString());
+
+            if (this.isUpToDate(sources, projectHash)) {
+                logger.info("BatchConverter@convertProject() -> Project " + projectPath + " is unchanged");
+                List<Map<String, Object>> logs = new ArrayList<>();
+                for (Path source : sources) {
+                    Map<String, Object> log = new HashMap<>(this.previousLogs.get(toURI(source).toString()));
+                    log.put("isSkipped", true);
+                    // the times of the previous conversion do not belong to this run
+                    log.put("parsingTimeInMillis", 0L);
+                    log.put("conversionTimeInMillis", 0L);
+                    logs.add(log);
+                }
+                return logs;
+            }
+
+            // the previous instance models are removed, the new ones can have different
+            // names or be fewer
+            for (Path source : sources) {
+                this.deleteInstanceModels(this.previousLogs.get(toURI(source).toString()));
+            }
+
+            List<String> docFiles = findDocFiles(projectPath);
+            // archives can contain projects with the same name, the hash of the project
+            // path keeps the instance model names unique
+            String projectPrefix = projectPath.getFileName() + "_"
+                    + Utils.sha256(projectPath.toString()).substring(0, 8);
+            XtextResourceSet resourceSet = this.workerResourceSet.get();
+            try {
+                // load every file of the project before linking, files can refer to each other
+                Map<Path, Resource> resources = new HashMap<>();
+                Map<Path, Long> parsingTimes = new HashMap<>();
+                // files whose conversion threw, they are converted again in the next run
+                Set<Path> failedSources = new HashSet<>();
+                for (Path source : sources) {
+                    long start = System.nanoTime();
+                    try {
+                        resources.put(source, resourceSet.getResource(toURI(source), true));
+                    } catch (Exception e) {
+                        failedSources.add(source);
+                        logger.error(
+                                "BatchConverter@convertProject() -> Cannot load " + source + ": " + e.getMessage());
+                    }
+                    parsingTimes.put(source, (System.nanoTime() - start) / 1_000_000);
+                }
+
+                List<Map<String, Object>> logs = new ArrayList<>();
+                for (Path source : sources) {
+                    long start = System.nanoTime();
+                    Map<String, Object> log;
+                    try {
+                        log = this.convertFile(resourceSet, projectPrefix, source, resources.get(source), docFiles,
+                                failedSources);
+                    } catch (Exception e) {
+                        failedSources.add(source);
+                        log = newLog(source, docFiles);
+                        ((List<String>) log.get("errors"))
+                                .add("ERROR: cannot convert " + source + ": " + e.getMessage());
+                    }
+                    // without the project hash the project is not up to date in the next run
+                    if (!failedSources.contains(source)) {
+                        log.put("sourceHash", sourceHashes.get(source));
+                        log.put("projectHash", projectHash);
+                    }
+                    log.put("parsingTimeInMillis", parsingTimes.get(source));
+                    log.put("conversionTimeInMillis",
+                            parsingTimes.get(source) + (System.nanoTime() - start) / 1_000_000);
+                    logs.add(log);
+                }
+                return logs;
+            } finally {
+                this.releaseProjectResources(resourceSet);
+            }
+        } catch (Exception e) {
+            return this.failedProjectLogs(projectPath, sources, e);
+        }
+    }
+
+    /**
+     * Logs of the files of a project whose conversion failed, without hashes so
+     * that the project is converted again in the next run
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> failedProjectLogs(Path projectPath, List<Path> sources, Throwable error) {
+        logger.error("BatchConverter@failedProjectLogs() -> Cannot convert project " + projectPath + ": "
+                + error.getMessage());
+        List<Map<String, Object>> logs = new ArrayList<>();
+        for (Path source : sources) {
+            Map<String, Object> log = newLog(source, new ArrayList<>());
+            ((List<String>) log.get("errors"))
+                    .add("ERROR: cannot convert project " + projectPath + ": " + error.getMessage());
+            logs.add(log);
+        }
+        return logs;
+    }
+
+    /**
+     * Log of a file that has not been converted yet
+     */
+    private Map<String, Object> newLog(Path source, List<String> docFiles) {
+        Map<String, Object> log = new HashMap<>();
+        log.put("extension", SearchFileTraversal.getExtension(source.toString()));
+        log.put("pathAADLFile", toURI(source).toString());
+        log.put("pathXMLFile", this.xmiFolderPath.toString() + File.separator);
+        log.put("pathXMLFiles", new ArrayList<String>());
+        log.put("isParsingSucceeded", false);
+        log.put("isSavedTheModel", false);
+        log.put("isSkipped", false);
+        log.put("docFiles", docFiles);
+        log.put("errors", new ArrayList<String>());
+        return log;
+    }
+
+    /**
+     * Instantiate every system implementation of the file and save the instance
+     * models in the xmi folder. If an instance model cannot be created the source
+     * is added to failedSources. The names of the instance models start with
+     * projectPrefix.
+     *
+     * @return the conversion log of the file
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> convertFile(XtextResourceSet resourceSet, String projectPrefix, Path source,
+            Resource resource, List<String> docFiles, Set<Path> failedSources) {
+        URI sourceURI = toURI(source);
+        Map<String, Object> log = newLog(source, docFiles);
+        List<String> errors = (List<String>) log.get("errors");
+        List<String> instanceFiles = (List<String>) log.get("pathXMLFiles");
+
+        if (resource == null || resource.getContents().isEmpty()) {
+            errors.add("This model: " + sourceURI + " cannot be parsed");
+            return log;
+        }
+
+        EcoreUtil.resolveAll(resource);
+        for (Resource.Diagnostic diagnostic : resource.getErrors()) {
+            errors.add("ERROR:" + diagnostic.getMessage());
+        }
+
+        EObject root = resource.getContents().get(0);
+        if (!(root instanceof AadlPackage)) {
+            errors.add("This model: " + sourceURI + " is not an AadlPackage");
+            return log;
+        }
+
+        AadlPackage aadlPackage = (AadlPackage) root;
+        log.put("isParsingSucceeded", true);
+        log.put("modelName", aadlPackage.getName());
+        if (aadlPackage.getOwnedPublicSection() == null) {
+            return log;
+        }
+
+        int index = 0;
+        for (Classifier classifier : aadlPackage.getOwnedPublicSection().getOwnedClassifiers()) {
+            if (!(classifier instanceof SystemImplementation)) {
+                continue;
+            }
+            index++;
+            String instanceName = projectPrefix + "_" + aadlPackage.getName().replace("::", "_") + "_"
+                    + classifier.getName().replace(".", "_") + "_" + index + "." + instanceModelExtension;
+            Path instancePath = this.xmiFolderPath.resolve(instanceName);
+            try {
+                Resource instanceResource = resourceSet.createResource(toURI(instancePath));
+                new InstantiateModel(new NullProgressMonitor())
+                        .createSystemInstance((SystemImplementation) classifier, instanceResource);
+                instanceResource.save(null);
+                if (instanceFiles.isEmpty()) {
+                    log.put("pathXMLFile", instancePath.toString());
+                }
+                instanceFiles.add(instancePath.toString());
+                log.put("isSavedTheModel", true);
+            } catch (Exception e) {
+                // do not leave a partially written instance model
+                instancePath.toFile().delete();
+                failedSources.add(source);
+                errors.add("ERROR: cannot instantiate " + classifier.getName() + ": " + e.getMessage());
+            }
+        }
+        return log;
+    }
+
+    /**
+     * A project can be skipped if every file was converted with the same project
+     * hash and all the instance models are still on disk
+     */
+    private boolean isUpToDate(List<Path> sources, String projectHash) {
+        for (Path source : sources) {
+            Map<String, Object> previousLog = this.previousLogs.get(toURI(source).toString());
+            if (previousLog == null || !projectHash.equals(previousLog.get("projectHash"))) {
+                return false;
+            }
+            for (Path instancePath : this.instanceModelsOf(previousLog)) {
+                if (!instancePath.toFile().exists()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Instance models produced by a previous conversion, only the files in the xmi
+     * folder are considered. Logs written before pathXMLFiles existed only have
+     * pathXMLFile.
+     */
+    private List<Path> instanceModelsOf(Map<String, Object> previousLog) {
+        List<Path> instancePaths = new ArrayList<>();
+        if (previousLog == null) {
+            return instancePaths;
+        }
+        if (previousLog.get("pathXMLFiles") instanceof List) {
+            for (Object instanceFile : (List<?>) previousLog.get("pathXMLFiles")) {
+                instancePaths.add(Paths.get(String.valueOf(instanceFile)));
+            }
+        } else if (Boolean.TRUE.equals(previousLog.get("isSavedTheModel"))) {
+            instancePaths.add(Paths.get(String.valueOf(previousLog.get("pathXMLFile"))));
+        }
+        return instancePaths.stream().map(path -> path.toAbsolutePath().normalize())
+                .filter(path -> path.startsWith(this.xmiFolderPath)).collect(Collectors.toList());
+    }
+
+    private void deleteInstanceModels(Map<String, Object> previousLog) throws Exception {
+        for (Path instancePath : this.instanceModelsOf(previousLog)) {
+            Files.deleteIfExists(instancePath);
+        }
+    }
+
+    /**
+     * Create the resource set of the current worker with the shared libraries
+     * already loaded and resolved
+     */
+    private XtextResourceSet createWorkerResourceSet() {
+        long start = System.nanoTime();
+        XtextResourceSet resourceSet = this.injector.getInstance(XtextResourceSet.class);
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(instanceModelExtension,
+                new XMIResourceFactoryImpl());
+        for (URI libraryURI : this.sharedLibraryURIs) {
+            resourceSet.getResource(libraryURI, true);
+        }
+        EcoreUtil.resolveAll(resourceSet);
+        logger.info("BatchConverter@createWorkerResourceSet() -> Loaded " + this.sharedLibraryURIs.size()
+                + " shared libraries in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return resourceSet;
+    }
+
+    /**
+     * Unload everything but the shared libraries
+     */
+    private void releaseProjectResources(XtextResourceSet resourceSet) {
+        for (Resource resource : new ArrayList<>(resourceSet.getResources())) {
+            if (!this.sharedLibraryURIs.contains(resource.getURI())) {
+                resource.unload();
+                resourceSet.getResources().remove(resource);
+            }
+        }
+    }
+
+    private static List<String> findDocFiles(Path projectPath) throws Exception {
+        try (Stream<Path> paths = Files.walk(projectPath)) {
+            return paths.filter(path -> SearchFileTraversal.getExtension(path.toString()).equalsIgnoreCase("md"))
+                    .map(Path::toString).collect(Collectors.toList());
+        }
+    }
+
+    private static URI toURI(Path path) {
+        return URI.createFileURI(path.toAbsolutePath().normalize().toString());
+    }
+
+}
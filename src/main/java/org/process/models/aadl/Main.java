@@ -0,0 +1,63 @@
+package org.process.models.aadl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.config.Config;
+import org.utils.Utils;
+
+public class Main {
+
+    private final static Logger logger = LogManager.getLogger(Main.class);
+
+    public static void main(String[] args) {
+
+        logger.info("Main@main -> Running AADL batch conversion");
+        try {
+            Config config = new Config();
+            // previous logs are needed to skip the unchanged sources
+            config.loadJSONFilesGeneratedByDiscoveringPhase();
+
+            // the output folder is not cleaned, previous instance models are reused
+            Path outputPathFolder = Paths.get(config.getRootPath(), config.getOutputFolderName());
+            Files.createDirectories(outputPathFolder.resolve("xmi"));
+
+            List<String> sources = new ArrayList<>();
+            for (String archive : config.getArchivesForSearching()) {
+                for (String source : Utils.discoverModelFromPath(archive, config.getExtensionsForSearching())) {
+                    if (!isAvoided(Paths.get(source), config.getAvoidFileNames())) {
+                        sources.add(source);
+                    }
+                }
+            }
+
+            BatchConverter batchConverter = new BatchConverter(config);
+            config.setConversionLogs(batchConverter.convert(sources));
+            config.saveConversionLogs();
+
+        } catch (Exception e) {
+            logger.info("Main@main -> ERROR: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check if any element of the path is one of the file names to avoid
+     *
+     * @param path
+     * @param avoidFileNames
+     * @return true/false
+     */
+    private static boolean isAvoided(Path path, List<String> avoidFileNames) {
+        for (Path element : path) {
+            if (avoidFileNames.contains(element.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
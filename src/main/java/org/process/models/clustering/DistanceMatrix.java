@@ -0,0 +1,235 @@
+package org.process.models.clustering;
+
+import java.io.DataInputStream;
+import java.io.FileReader;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.opencsv.CSVReader;
+
+import lombok.Getter;
+
+/**
+ * Symmetric distance matrix between models, stored as the packed upper
+ * triangle (i < j). The values can be kept on heap (csv matrices) or memory
+ * mapped from the binary format, in the latter case the heap usage does not
+ * depend on the number of pairs.
+ *
+ * Binary format (written by {@link DistanceMatrixWriter}): int n, n model
+ * names written with writeUTF, then the n(n-1)/2 values of the upper triangle
+ * row by row as big endian doubles.
+ */
+public class DistanceMatrix {
+
+    private final static Logger logger = LogManager.getLogger(DistanceMatrix.class);
+
+    /**
+     * Number of doubles in each memory mapped segment (1 GiB)
+     */
+    private final static int SEGMENT_SIZE = 1 << 27;
+
+    @Getter
+    private final List<String> labels;
+
+    @Getter
+    private final int size;
+
+    private final boolean valuesAreSimilarities;
+
+    private final double[] packedValues;
+
+    private final DoubleBuffer[] mappedSegments;
+
+    private DistanceMatrix(List<String> labels, boolean valuesAreSimilarities, double[] packedValues,
+            DoubleBuffer[] mappedSegments) {
+        this.labels = labels;
+        this.size = labels.size();
+        this.valuesAreSimilarities = valuesAreSimilarities;
+        this.packedValues = packedValues;
+        this.mappedSegments = mappedSegments;
+    }
+
+    /**
+     * Return the distance between model i and model j
+     *
+     * @param i
+     * @param j
+     * @return double
+     */
+    public double distance(int i, int j) {
+        if (i == j) {
+            return 0d;
+        }
+        long index = i < j ? packedIndex(i, j, this.size) : packedIndex(j, i, this.size);
+        double value;
+        if (this.packedValues != null) {
+            value = this.packedValues[(int) index];
+        } else {
+            value = this.mappedSegments[(int) (index / SEGMENT_SIZE)].get((int) (index % SEGMENT_SIZE));
+        }
+        return this.valuesAreSimilarities ? 1d - value : value;
+    }
+
+    /**
+     * Position of the pair (i, j), with i < j, in the packed upper triangle
+     *
+     * @param i
+     * @param j
+     * @param n
+     * @return long
+     */
+    private static long packedIndex(int i, int j, int n) {
+        return (long) i * n - (long) i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Read a squared matrix from a csv file, row by row. If the first row is not
+     * numeric it is used as header and the first column of each row as model
+     * name. Only one of the two triangles needs to be filled.
+     *
+     * @param filePath
+     * @param valuesAreSimilarities
+     * @return DistanceMatrix
+     * @throws Exception
+     */
+    public static DistanceMatrix fromCSV(String filePath, boolean valuesAreSimilarities) throws Exception {
+        logger.info("DistanceMatrix@fromCSV() -> Reading matrix from " + filePath);
+
+        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
+            String[] row = readNextRow(reader);
+            if (row == null) {
+                throw new Exception("The similarity matrix " + filePath + " is empty");
+            }
+
+            boolean hasHeader = !isNumeric(row[0]);
+            int firstColumn = hasHeader ? 1 : 0;
+            int n = row.length - firstColumn;
+            if (hasHeader) {
+                row = readNextRow(reader);
+            }
+
+            List<String> labels = new ArrayList<>(n);
+            double[] packedValues = new double[checkedPackedLength(n)];
+            Arrays.fill(packedValues, Double.NaN);
+
+            for (int r = 0; r < n; r++, row = readNextRow(reader)) {
+                if (row == null) {
+                    throw new Exception(filePath + " has " + r + " rows, expected " + n);
+                }
+                if (row.length - firstColumn != n) {
+                    throw new Exception("Row " + r + " of " + filePath + " has " + (row.length - firstColumn)
+                            + " values, expected " + n);
+                }
+                labels.add(hasHeader ? row[0].trim() : "model_" + r);
+                for (int c = 0; c < n; c++) {
+                    String cell = row[c + firstColumn].trim();
+                    storeCell(packedValues, n, r, c, cell.isEmpty() ? null : Double.parseDouble(cell));
+                }
+            }
+            if (row != null) {
+                throw new Exception(filePath + " has more than " + n + " rows");
+            }
+            checkAllPairsPresent(packedValues);
+            return new DistanceMatrix(labels, valuesAreSimilarities, packedValues, null);
+        }
+    }
+
+    /**
+     * Next non blank row of the csv, null at the end of the file
+     */
+    private static String[] readNextRow(CSVReader reader) throws Exception {
+        String[] row;
+        while ((row = reader.readNext()) != null) {
+            if (row.length > 1 || (row.length == 1 && !row[0].isBlank())) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Memory map a matrix written with {@link DistanceMatrixWriter}
+     *
+     * @param filePath
+     * @param valuesAreSimilarities
+     * @return DistanceMatrix
+     * @throws Exception
+     */
+    public static DistanceMatrix fromBinary(String filePath, boolean valuesAreSimilarities) throws Exception {
+        logger.info("DistanceMatrix@fromBinary() -> Mapping matrix from " + filePath);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // not buffered, so the channel position is exactly the end of the header
+            DataInputStream header = new DataInputStream(Channels.newInputStream(channel));
+            int n = header.readInt();
+            List<String> labels = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                labels.add(header.readUTF());
+            }
+
+            long offset = channel.position();
+            long pairs = (long) n * (n - 1) / 2;
+            if (channel.size() - offset < pairs * Double.BYTES) {
+                throw new Exception("The binary matrix " + filePath + " is truncated");
+            }
+
+            DoubleBuffer[] segments = new DoubleBuffer[(int) ((pairs + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int s = 0; s < segments.length; s++) {
+                long count = Math.min(SEGMENT_SIZE, pairs - (long) s * SEGMENT_SIZE);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        offset + (long) s * SEGMENT_SIZE * Double.BYTES, count * Double.BYTES).asDoubleBuffer();
+            }
+            // the mapping stays valid after the channel is closed
+            return new DistanceMatrix(labels, valuesAreSimilarities, null, segments);
+        }
+    }
+
+    /**
+     * Store the value of the cell (r, c) in the packed triangle if the pair has
+     * not been filled yet, the diagonal is ignored
+     */
+    private static void storeCell(double[] packedValues, int n, int r, int c, Double value) {
+        if (r == c || value == null) {
+            return;
+        }
+        int index = (int) (r < c ? packedIndex(r, c, n) : packedIndex(c, r, n));
+        if (Double.isNaN(packedValues[index])) {
+            packedValues[index] = value;
+        }
+    }
+
+    private static void checkAllPairsPresent(double[] packedValues) throws Exception {
+        for (double value : packedValues) {
+            if (Double.isNaN(value)) {
+                throw new Exception("The similarity matrix has pairs without a value");
+            }
+        }
+    }
+
+    private static int checkedPackedLength(int n) throws Exception {
+        long pairs = (long) n * (n - 1) / 2;
+        if (pairs > Integer.MAX_VALUE - 8) {
+            throw new Exception("Too many models (" + n + ") for an in memory matrix, use the binary format");
+        }
+        return (int) pairs;
+    }
+
+    private static boolean isNumeric(String value) {
+        try {
+            Double.parseDouble(value.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.process.models.clustering;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Stream the upper triangle of a distance matrix to disk in the binary format
+ * read by {@link DistanceMatrix#fromBinary}, one value at a time. Values must
+ * be written row by row: (0,1), (0,2), ..., (0,n-1), (1,2), ...
+ */
+public class DistanceMatrixWriter implements AutoCloseable {
+
+    private final DataOutputStream output;
+
+    private final long expectedValues;
+
+    private long writtenValues = 0;
+
+    /**
+     * Create the file and write the header
+     *
+     * @param path
+     * @param labels the model names, in the order of the rows
+     * @throws Exception
+     */
+    public DistanceMatrixWriter(Path path, List<String> labels) throws Exception {
+        int n = labels.size();
+        this.expectedValues = (long) n * (n - 1) / 2;
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())));
+        this.output.writeInt(n);
+        for (String label : labels) {
+            this.output.writeUTF(label);
+        }
+    }
+
+    /**
+     * Append the value of the next pair
+     *
+     * @param value
+     * @throws Exception
+     */
+    public void write(double value) throws Exception {
+        if (this.writtenValues == this.expectedValues) {
+            throw new Exception("All the " + this.expectedValues + " pairs have already been written");
+        }
+        this.output.writeDouble(value);
+        this.writtenValues++;
+    }
+
+    /**
+     * Close the file, failing if some pairs were not written
+     */
+    @Override
+    public void close() throws Exception {
+        this.output.close();
+        if (this.writtenValues != this.expectedValues) {
+            throw new Exception("Written " + this.writtenValues + " pairs, expected " + this.expectedValues);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package org.process.models.clustering;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import lombok.Getter;
+
+/**
+ * Agglomerative clustering of the models in the pointer representation
+ * (pointer, height): pointer[i] is the last model of the cluster that i joins
+ * at distance height[i]. Both algorithms need O(n^2) time and O(n) memory on
+ * top of the distance matrix.
+ *
+ * The models are inserted one at a time and the pointer updates of each
+ * insertion depend on the previous ones, so they are inherently sequential.
+ * Only the distances of each new model from the previous ones are computed in
+ * parallel, the main source of parallelism is running the clustering methods
+ * concurrently.
+ */
+public class HierarchicalClustering {
+
+    private final static Logger logger = LogManager.getLogger(HierarchicalClustering.class);
+
+    /**
+     * Below this number of previous models a row is computed sequentially, the
+     * fork/join overhead would be greater than the work
+     */
+    private final static int PARALLEL_ROW_THRESHOLD = 2048;
+
+    @Getter
+    private final int[] pointer;
+
+    @Getter
+    private final double[] height;
+
+    private HierarchicalClustering(int[] pointer, double[] height) {
+        this.pointer = pointer;
+        this.height = height;
+    }
+
+    /**
+     * Single linkage clustering with the SLINK algorithm (Sibson, 1973)
+     *
+     * @param matrix
+     * @param pool
+     * @return HierarchicalClustering
+     */
+    public static HierarchicalClustering singleLinkage(DistanceMatrix matrix, ForkJoinPool pool) {
+        logger.info("HierarchicalClustering@singleLinkage() -> Clustering " + matrix.getSize() + " models");
+
+        int n = matrix.getSize();
+        int[] pointer = new int[n];
+        double[] height = new double[n];
+        double[] m = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            pointer[i] = i;
+            height[i] = Double.POSITIVE_INFINITY;
+            distancesFromPrevious(matrix, i, m, pool);
+
+            for (int j = 0; j < i; j++) {
+                int p = pointer[j];
+                if (height[j] >= m[j]) {
+                    m[p] = Math.min(m[p], height[j]);
+                    height[j] = m[j];
+                    pointer[j] = i;
+                } else {
+                    m[p] = Math.min(m[p], m[j]);
+                }
+            }
+            for (int j = 0; j < i; j++) {
+                if (height[j] >= height[pointer[j]]) {
+                    pointer[j] = i;
+                }
+            }
+        }
+        return new HierarchicalClustering(pointer, height);
+    }
+
+    /**
+     * Complete linkage clustering with the CLINK algorithm (Defays, 1977). CLINK
+     * is an approximation of the complete linkage: merges are always at complete
+     * linkage distances, but the hierarchy can depend on the order of the models.
+     *
+     * @param matrix
+     * @param pool
+     * @return HierarchicalClustering
+     */
+    public static HierarchicalClustering completeLinkage(DistanceMatrix matrix, ForkJoinPool pool) {
+        logger.info("HierarchicalClustering@completeLinkage() -> Clustering " + matrix.getSize() + " models");
+
+        int n = matrix.getSize();
+        int[] pointer = new int[n];
+        double[] height = new double[n];
+        double[] m = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            pointer[i] = i;
+            height[i] = Double.POSITIVE_INFINITY;
+            if (i == 0) {
+                continue;
+            }
+            distancesFromPrevious(matrix, i, m, pool);
+
+            for (int j = 0; j < i; j++) {
+                if (height[j] < m[j]) {
+                    int p = pointer[j];
+                    m[p] = Math.max(m[p], m[j]);
+                    m[j] = Double.POSITIVE_INFINITY;
+                }
+            }
+
+            int a = i - 1;
+            for (int j = i - 1; j >= 0; j--) {
+                if (height[j] >= m[pointer[j]]) {
+                    if (m[j] < m[a]) {
+                        a = j;
+                    }
+                } else {
+                    m[j] = Double.POSITIVE_INFINITY;
+                }
+            }
+
+            int b = pointer[a];
+            double c = height[a];
+            pointer[a] = i;
+            height[a] = m[a];
+            if (a < i - 1) {
+                while (b < i - 1) {
+                    int d = pointer[b];
+                    double e = height[b];
+                    pointer[b] = i;
+                    height[b] = c;
+                    b = d;
+                    c = e;
+                }
+                if (b == i - 1) {
+                    pointer[b] = i;
+                    height[b] = c;
+                }
+            }
+
+            for (int j = 0; j < i; j++) {
+                if (pointer[pointer[j]] == i && height[j] >= height[pointer[j]]) {
+                    pointer[j] = i;
+                }
+            }
+        }
+        return new HierarchicalClustering(pointer, height);
+    }
+
+    /**
+     * Fill m[0..i) with the distances of model i from the previous models
+     */
+    private static void distancesFromPrevious(DistanceMatrix matrix, int i, double[] m, ForkJoinPool pool) {
+        if (i < PARALLEL_ROW_THRESHOLD) {
+            for (int j = 0; j < i; j++) {
+                m[j] = matrix.distance(i, j);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, i).parallel().forEach(j -> m[j] = matrix.distance(i, j))).join();
+        }
+    }
+
+    /**
+     * Convert the pointer representation in the list of the n - 1 merges. Each
+     * row is {left, right, distance, size}: models are numbered 0..n-1 and the
+     * cluster created by the merge at step s is numbered n + s.
+     *
+     * @return double[][]
+     */
+    public double[][] toDendrogram() {
+        int n = this.pointer.length;
+        if (n < 2) {
+            return new double[0][];
+        }
+
+        // the last model is the only one with an infinite height
+        Integer[] order = new Integer[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(this.height[x], this.height[y]));
+
+        UnionFind unionFind = new UnionFind(n);
+        int[] clusterOfRoot = new int[n];
+        for (int i = 0; i < n; i++) {
+            clusterOfRoot[i] = i;
+        }
+
+        double[][] merges = new double[n - 1][];
+        for (int step = 0; step < n - 1; step++) {
+            int i = order[step];
+            int left = clusterOfRoot[unionFind.find(i)];
+            int right = clusterOfRoot[unionFind.find(this.pointer[i])];
+            int root = unionFind.union(i, this.pointer[i]);
+            clusterOfRoot[root] = n + step;
+            merges[step] = new double[] { Math.min(left, right), Math.max(left, right), this.height[i],
+                    unionFind.sizeOf(root) };
+        }
+        return merges;
+    }
+
+    /**
+     * Cut the hierarchy at the given distance
+     *
+     * @param threshold
+     * @return the cluster number of each model
+     */
+    public int[] cut(double threshold) {
+        UnionFind unionFind = new UnionFind(this.pointer.length);
+        for (int i = 0; i < this.pointer.length; i++) {
+            if (this.height[i] <= threshold) {
+                unionFind.union(i, this.pointer[i]);
+            }
+        }
+        return unionFind.labels();
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.process.models.clustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.config.ClusteringConfig;
+import org.config.EclConfig;
+import org.utils.SearchFileTraversal;
+import org.utils.Utils;
+
+public class Main {
+
+    private final static Logger logger = LogManager.getLogger(Main.class);
+
+    public static void main(String[] args) {
+
+        logger.info("Main@main -> Running models clustering");
+        ForkJoinPool pool = null;
+        try {
+            ClusteringConfig clusteringConfig = new ClusteringConfig();
+
+            EclConfig eclConfig = new EclConfig();
+
+            double threshold = eclConfig.getEclParams().getThreshold();
+
+            String inputFilePath = clusteringConfig.getInputFilePath();
+            DistanceMatrix matrix = SearchFileTraversal.getExtension(inputFilePath).equals("csv")
+                    ? DistanceMatrix.fromCSV(inputFilePath, clusteringConfig.isValuesAreSimilarities())
+                    : DistanceMatrix.fromBinary(inputFilePath, clusteringConfig.isValuesAreSimilarities());
+
+            pool = new ForkJoinPool(clusteringConfig.getParallelism());
+
+            // the methods are independent, they run concurrently on the same pool
+            List<CompletableFuture<Void>> runs = new ArrayList<>();
+            for (String method : clusteringConfig.getMethods()) {
+                ForkJoinPool methodPool = pool;
+                runs.add(CompletableFuture.runAsync(
+                        () -> runMethod(method, matrix, threshold, methodPool, clusteringConfig.getOutputFolderPath()),
+                        pool));
+            }
+            CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).join();
+
+        } catch (Exception e) {
+            logger.info("Main@main -> ERROR: " + e.getMessage());
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Run a clustering method and write its results, errors are logged so that
+     * they do not stop the other methods
+     *
+     * @param method
+     * @param matrix
+     * @param threshold
+     * @param pool
+     * @param outputFolderPath
+     */
+    private static void runMethod(String method, DistanceMatrix matrix, double threshold, ForkJoinPool pool,
+            String outputFolderPath) {
+        try {
+            HierarchicalClustering hierarchicalClustering;
+            switch (method) {
+                case "single":
+                    hierarchicalClustering = HierarchicalClustering.singleLinkage(matrix, pool);
+                    break;
+                case "complete":
+                    hierarchicalClustering = HierarchicalClustering.completeLinkage(matrix, pool);
+                    break;
+                case "threshold":
+                    writeAssignments(matrix.getLabels(),
+                            ThresholdClustering.connectedComponents(matrix, threshold, pool), outputFolderPath,
+                            method);
+                    return;
+                default:
+                    logger.warn("Main@runMethod() -> Unknown clustering method: " + method);
+                    return;
+            }
+            writeAssignments(matrix.getLabels(), hierarchicalClustering.cut(threshold), outputFolderPath, method);
+            writeDendrogram(hierarchicalClustering.toDendrogram(), outputFolderPath, method);
+        } catch (Exception e) {
+            logger.error("Main@runMethod() -> ERROR in " + method + " clustering: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the cluster of each model in clustering-{method}-assignments.csv
+     *
+     * @param labels
+     * @param clusters
+     * @param folderPath
+     * @param method
+     * @throws Exception
+     */
+    private static void writeAssignments(List<String> labels, int[] clusters, String folderPath, String method)
+            throws Exception {
+        List<String[]> lines = new ArrayList<>();
+        lines.add(new String[] { "model", "cluster" });
+        for (int i = 0; i < clusters.length; i++) {
+            lines.add(new String[] { labels.get(i), String.valueOf(clusters[i]) });
+        }
+        Utils.writeToCSV(lines, folderPath, "clustering-" + method + "-assignments.csv");
+    }
+
+    /**
+     * Write the merges of the hierarchy in clustering-{method}-dendrogram.csv
+     *
+     * @param merges
+     * @param folderPath
+     * @param method
+     * @throws Exception
+     */
+    private static void writeDendrogram(double[][] merges, String folderPath, String method) throws Exception {
+        List<String[]> lines = new ArrayList<>();
+        lines.add(new String[] { "step", "left", "right", "distance", "size" });
+        for (int step = 0; step < merges.length; step++) {
+            lines.add(new String[] { String.valueOf(step), String.valueOf((int) merges[step][0]),
+                    String.valueOf((int) merges[step][1]), String.valueOf(merges[step][2]),
+                    String.valueOf((int) merges[step][3]) });
+        }
+        Utils.writeToCSV(lines, folderPath, "clustering-" + method + "-dendrogram.csv");
+    }
+}
@@ -0,0 +1,57 @@
+package org.process.models.clustering;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Group the models in the connected components of the graph that links two
+ * models when their distance is not greater than the threshold.
+ */
+public class ThresholdClustering {
+
+    private final static Logger logger = LogManager.getLogger(ThresholdClustering.class);
+
+    /**
+     * Each worker scans an interleaved subset of the rows with its own disjoint
+     * set, pairs already connected in that set are skipped without reading the
+     * matrix. The partial sets are merged at the end.
+     *
+     * @param matrix
+     * @param threshold
+     * @param pool
+     * @return the cluster number of each model
+     */
+    public static int[] connectedComponents(DistanceMatrix matrix, double threshold, ForkJoinPool pool) {
+        logger.info("ThresholdClustering@connectedComponents() -> Clustering " + matrix.getSize()
+                + " models with threshold " + threshold);
+
+        int n = matrix.getSize();
+        int workers = Math.max(1, Math.min(pool.getParallelism(), n));
+
+        List<UnionFind> partials = pool.submit(() -> IntStream.range(0, workers).parallel().mapToObj(worker -> {
+            UnionFind unionFind = new UnionFind(n);
+            for (int i = worker; i < n; i += workers) {
+                for (int j = i + 1; j < n; j++) {
+                    if (unionFind.find(i) != unionFind.find(j) && matrix.distance(i, j) <= threshold) {
+                        unionFind.union(i, j);
+                    }
+                }
+            }
+            return unionFind;
+        }).collect(Collectors.toList())).join();
+
+        UnionFind components = new UnionFind(n);
+        for (UnionFind partial : partials) {
+            for (int i = 0; i < n; i++) {
+                components.union(i, partial.find(i));
+            }
+        }
+        return components.labels();
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.process.models.clustering;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint set over the indexes of the models, with path halving and union by
+ * size.
+ */
+class UnionFind {
+
+    private final int[] parent;
+
+    private final int[] size;
+
+    UnionFind(int n) {
+        this.parent = new int[n];
+        this.size = new int[n];
+        for (int i = 0; i < n; i++) {
+            this.parent[i] = i;
+            this.size[i] = 1;
+        }
+    }
+
+    int find(int i) {
+        while (this.parent[i] != i) {
+            this.parent[i] = this.parent[this.parent[i]];
+            i = this.parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merge the sets containing a and b
+     *
+     * @param a
+     * @param b
+     * @return the root of the merged set
+     */
+    int union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return rootA;
+        }
+        if (this.size[rootA] < this.size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        this.parent[rootB] = rootA;
+        this.size[rootA] += this.size[rootB];
+        return rootA;
+    }
+
+    int sizeOf(int i) {
+        return this.size[find(i)];
+    }
+
+    /**
+     * Compact cluster number of each element, clusters are numbered in order of
+     * their first element
+     *
+     * @return int[]
+     */
+    int[] labels() {
+        int n = this.parent.length;
+        int[] labels = new int[n];
+        int[] labelOfRoot = new int[n];
+        Arrays.fill(labelOfRoot, -1);
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            int root = find(i);
+            if (labelOfRoot[root] < 0) {
+                labelOfRoot[root] = next++;
+            }
+            labels[i] = labelOfRoot[root];
+        }
+        return labels;
+    }
+
+}
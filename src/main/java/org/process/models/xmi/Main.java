@@ -3,6 +3,7 @@ package org.process.models.xmi;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.LogManager;
@@ -10,14 +11,28 @@ import org.apache.log4j.Logger;
 import org.config.Config;
 import org.config.EclConfig;
 import org.eclipse.epsilon.ecl.EclModule;
-import org.eclipse.epsilon.ecl.trace.MatchTrace;
+import org.eclipse.epsilon.ecl.execute.context.EclContext;
 import org.eclipse.epsilon.emc.emf.EmfModel;
+import org.eclipse.epsilon.eol.execute.context.Variable;
+import org.process.models.clustering.DistanceMatrixWriter;
+import org.utils.NameDictionary;
 import org.utils.Utils;
 
 public class Main {
 
     private final static Logger logger = LogManager.getLogger(Main.class);
 
+    /**
+     * Number of first models kept in memory together, each second model is
+     * loaded once for the whole block instead of once for each row
+     */
+    private final static int ROWS_PER_BLOCK = 32;
+
+    /**
+     * Distance written for the pairs that cannot be compared
+     */
+    private final static double FAILED_PAIR_DISTANCE = 1d;
+
     public static void main(String[] args) {
 
         logger.info("Main@main -> Running ECORE processing");
@@ -28,37 +43,152 @@ public class Main {
 
             List<String> uriList = Utils.discoverModelFromPath(config.getRootPath(), config.getModelExtension());
 
-            Double[][] matrix = new Double[1][1];
             // Same as eol runner
             Path eclFileFolderPath = Paths.get(eclConfig.getEclScriptsFolderPath()).toAbsolutePath();
 
             String eclFilePath = eclFileFolderPath.resolve(eclConfig.getEclScriptName()).toString();
 
             String metaModelPath = Paths.get("ecore", "aadl2_inst.ecore").toAbsolutePath().toString();
+            // registered once, models are created from the registered packages
+            List<String> metaModelURIs = Utils.registerMetamodel(metaModelPath);
 
-            EmfModel firstModel = Utils.createEmfModel("FirstModel", uriList.get(0), metaModelPath, true, false);
+            // corpus wide names dictionary, saved next to the cache
+            Path nameDictionaryPath = Paths.get("storage/cache", "names-dictionary.json").toAbsolutePath();
+            NameDictionary nameDictionary = NameDictionary.load(nameDictionaryPath);
 
+            // parsed once, each pair is executed in a new context
             EclModule eclModule = new EclModule();
+            eclModule.parse(new File(eclFilePath));
+            if (!eclModule.getParseProblems().isEmpty()) {
+                throw new Exception("The ecl script " + eclFilePath + " has parse problems: "
+                        + eclModule.getParseProblems());
+            }
+
+            List<String> labels = new ArrayList<>();
+            for (String uri : uriList) {
+                labels.add(Paths.get(uri).getFileName().toString());
+            }
+
+            int n = uriList.size();
+            // each model file is interned the first time it is loaded, the first block
+            // loads all of them
+            boolean[] interned = new boolean[n];
+            // the distances are streamed row by row, at most a block of rows is held in
+            // memory
+            Path binaryFilePath = Paths.get(eclConfig.getCsvFileFolderPath(), eclConfig.getBinaryFileName());
+            try (DistanceMatrixWriter distanceMatrixWriter = new DistanceMatrixWriter(binaryFilePath, labels)) {
+                for (int blockStart = 0; blockStart < n; blockStart += ROWS_PER_BLOCK) {
+                    int blockEnd = Math.min(n, blockStart + ROWS_PER_BLOCK);
+
+                    EmfModel[] firstModels = new EmfModel[blockEnd - blockStart];
+                    double[][] rows = new double[blockEnd - blockStart][];
+                    for (int i = blockStart; i < blockEnd; i++) {
+                        firstModels[i - blockStart] = loadModel("FirstModel", uriList.get(i), metaModelURIs,
+                                nameDictionary, interned, i);
+                        rows[i - blockStart] = new double[n - i - 1];
+                    }
+
+                    for (int j = blockStart + 1; j < n; j++) {
+                        EmfModel secondModel = loadModel("SecondModel", uriList.get(j), metaModelURIs,
+                                nameDictionary, interned, j);
+                        for (int i = blockStart; i < Math.min(blockEnd, j); i++) {
+                            rows[i - blockStart][j - i - 1] = computeDistance(eclModule, firstModels[i - blockStart],
+                                    secondModel, nameDictionary, labels.get(i), labels.get(j));
+                        }
+                        if (secondModel != null) {
+                            secondModel.dispose();
+                        }
+                    }
+
+                    for (int i = blockStart; i < blockEnd; i++) {
+                        for (double distance : rows[i - blockStart]) {
+                            distanceMatrixWriter.write(distance);
+                        }
+                        if (firstModels[i - blockStart] != null) {
+                            firstModels[i - blockStart].dispose();
+                        }
+                    }
+                }
+            }
+
+            nameDictionary.save(nameDictionaryPath);
 
-            EmfModel secondModel = Utils.createEmfModel("SecondModel", uriList.get(1), metaModelPath, true,
-                    false);
+        } catch (Exception e) {
+            logger.info("Main@main -> ERROR: " + e.getMessage());
+        }
+    }
 
-            eclModule.parse(new File(eclFilePath));
+    /**
+     * Load a model, a model that cannot be loaded is logged and null is returned.
+     * The names of the model are added to the dictionary only the first time the
+     * model file is loaded.
+     *
+     * @param name
+     * @param modelURI
+     * @param metaModelURIs
+     * @param nameDictionary
+     * @param interned       models already interned
+     * @param index          index of the model file
+     * @return EmfModel or null
+     */
+    private static EmfModel loadModel(String name, String modelURI, List<String> metaModelURIs,
+            NameDictionary nameDictionary, boolean[] interned, int index) {
+        try {
+            EmfModel emfModel = Utils.createEmfModel(name, modelURI, metaModelURIs, true, false);
+            if (!interned[index]) {
+                nameDictionary.internModel(emfModel);
+                interned[index] = true;
+            }
+            return emfModel;
+        } catch (Exception e) {
+            logger.error("Main@loadModel() -> Cannot load " + modelURI + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Run the ecl script on a pair of models and return the value of its
+     * editDistance variable. The models are not disposed with the ecl context,
+     * they are reused for the next pairs. If the pair cannot be compared the
+     * error is logged and FAILED_PAIR_DISTANCE is returned.
+     *
+     * @param eclModule       the parsed ecl script
+     * @param firstModel
+     * @param secondModel
+     * @param nameDictionary
+     * @param firstLabel
+     * @param secondLabel
+     * @return double
+     */
+    private static double computeDistance(EclModule eclModule, EmfModel firstModel, EmfModel secondModel,
+            NameDictionary nameDictionary, String firstLabel, String secondLabel) {
+        if (firstModel == null || secondModel == null) {
+            return FAILED_PAIR_DISTANCE;
+        }
+        eclModule.setContext(new EclContext());
+        try {
+            // available in ecl scripts as names.equal(a, b), names.lookup(a) and names.similarity(a, b)
+            eclModule.getContext().getFrameStack().put(Variable.createReadOnlyVariable("names", nameDictionary));
 
             // Add models to ecl module
             eclModule.getContext().getModelRepository().addModel(firstModel);
             eclModule.getContext().getModelRepository().addModel(secondModel);
             // execute ecl module
+            eclModule.execute();
 
-            MatchTrace mt = eclModule.execute();
-        
-
-
-            //Utils.print2dArray(matrix);
-            eclModule.getContext().dispose();
-
+            Variable editDistance = eclModule.getContext().getFrameStack().get("editDistance");
+            if (editDistance == null || !(editDistance.getValue() instanceof Number)) {
+                throw new Exception("the ecl script does not define a numeric editDistance");
+            }
+            return ((Number) editDistance.getValue()).doubleValue();
         } catch (Exception e) {
-            logger.info("Main@main -> ERROR: " + e.getMessage());
+            logger.error("Main@computeDistance() -> Cannot compare " + firstLabel + " and " + secondLabel + ": "
+                    + e.getMessage());
+            return FAILED_PAIR_DISTANCE;
+        } finally {
+            eclModule.getContext().getModelRepository().removeModel(firstModel);
+            eclModule.getContext().getModelRepository().removeModel(secondModel);
+            eclModule.getContext().dispose();
         }
     }
 }
@@ -0,0 +1,253 @@
+package org.utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.epsilon.emc.emf.EmfModel;
+import org.json.JSONArray;
+
+import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
+
+/**
+ * Corpus wide dictionary that maps each distinct name (component names,
+ * classifier names, property strings, ...) to an int id. The loaded models are
+ * rewritten to reference the canonical instance of each name, so every name is
+ * kept in memory once. Names are compared by id, ecl scripts can also compare
+ * the ids returned by lookup.
+ *
+ * The ids are stable across runs because the dictionary is persisted next to
+ * the cache.
+ */
+public class NameDictionary {
+
+    private final static Logger logger = LogManager.getLogger(NameDictionary.class);
+
+    /**
+     * Number of bits of the similarity cache size
+     */
+    private final static int SIMILARITY_CACHE_BITS = 18;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Direct mapped cache of the similarity of the pairs already compared: a
+     * fixed size (4 MB) in which a new pair overwrites the one in its slot. The
+     * key packs the two ids, -1 marks an empty slot.
+     */
+    private final long[] similarityCacheKeys = new long[1 << SIMILARITY_CACHE_BITS];
+
+    private final double[] similarityCacheValues = new double[1 << SIMILARITY_CACHE_BITS];
+
+    private final NormalizedLevenshtein normalizedLevenshtein = new NormalizedLevenshtein();
+
+    public NameDictionary() {
+        Arrays.fill(this.similarityCacheKeys, -1L);
+    }
+
+    /**
+     * Return the id of the name, adding it to the dictionary if not present
+     *
+     * @param name
+     * @return the id, -1 for null
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = this.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return this.ids.computeIfAbsent(name, key -> {
+                this.names.add(key);
+                return this.names.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Return the id of the name without adding it to the dictionary
+     *
+     * @param name
+     * @return the id, -1 if the name is null or not in the dictionary
+     */
+    public int lookup(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = this.ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     *
+     * @param id
+     * @return the name with the given id
+     */
+    public synchronized String nameOf(int id) {
+        return this.names.get(id);
+    }
+
+    /**
+     *
+     * @param name
+     * @return the instance of the name held by the dictionary
+     */
+    public String canonical(String name) {
+        return name == null ? null : this.nameOf(this.idOf(name));
+    }
+
+    public synchronized int size() {
+        return this.names.size();
+    }
+
+    /**
+     * Equality of two names by id, names not in the dictionary are compared with
+     * equals
+     *
+     * @param first
+     * @param second
+     * @return true/false
+     */
+    public boolean equal(String first, String second) {
+        if (first == second) {
+            return true;
+        }
+        if (first == null || second == null) {
+            return false;
+        }
+        int firstId = this.lookup(first);
+        int secondId = this.lookup(second);
+        if (firstId < 0 || secondId < 0) {
+            return first.equals(second);
+        }
+        return firstId == secondId;
+    }
+
+    /**
+     * Normalized Levenshtein similarity, in [0,1], of two names. Names not in
+     * the dictionary are compared without caching and are not added.
+     *
+     * @param first
+     * @param second
+     * @return double
+     */
+    public double similarity(String first, String second) {
+        if (first == second) {
+            return 1d;
+        }
+        if (first == null || second == null) {
+            return 0d;
+        }
+        int firstId = this.lookup(first);
+        int secondId = this.lookup(second);
+        if (firstId < 0 || secondId < 0) {
+            return this.normalizedLevenshtein.similarity(first, second);
+        }
+        return this.similarity(firstId, secondId);
+    }
+
+    /**
+     * Normalized Levenshtein similarity, in [0,1], of two names given their ids.
+     * The result is kept in the similarity cache.
+     *
+     * @param firstId
+     * @param secondId
+     * @return double
+     */
+    public double similarity(int firstId, int secondId) {
+        if (firstId < 0 || secondId < 0) {
+            throw new IllegalArgumentException("Invalid name ids: " + firstId + ", " + secondId);
+        }
+        if (firstId == secondId) {
+            return 1d;
+        }
+        long key = firstId < secondId ? ((long) firstId << 32) | (secondId & 0xFFFFFFFFL)
+                : ((long) secondId << 32) | (firstId & 0xFFFFFFFFL);
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - SIMILARITY_CACHE_BITS));
+
+        synchronized (this.similarityCacheKeys) {
+            if (this.similarityCacheKeys[slot] == key) {
+                return this.similarityCacheValues[slot];
+            }
+        }
+        double similarity = this.normalizedLevenshtein.similarity(this.nameOf(firstId), this.nameOf(secondId));
+        synchronized (this.similarityCacheKeys) {
+            this.similarityCacheKeys[slot] = key;
+            this.similarityCacheValues[slot] = similarity;
+        }
+        return similarity;
+    }
+
+    /**
+     * Intern every string attribute of the model, the attribute values are
+     * replaced by the canonical instances
+     *
+     * @param emfModel
+     * @return the number of values interned
+     */
+    public int internModel(EmfModel emfModel) {
+        int interned = 0;
+        Iterator<EObject> iterator = emfModel.getResource().getAllContents();
+        while (iterator.hasNext()) {
+            EObject eObject = iterator.next();
+            for (EAttribute attribute : eObject.eClass().getEAllAttributes()) {
+                if (attribute.isMany() || attribute.isDerived() || !attribute.isChangeable()
+                        || attribute.getEAttributeType().getInstanceClass() != String.class
+                        || !eObject.eIsSet(attribute)) {
+                    continue;
+                }
+                eObject.eSet(attribute, this.canonical((String) eObject.eGet(attribute)));
+                interned++;
+            }
+        }
+        logger.debug("NameDictionary@internModel() -> Interned " + interned + " values of " + emfModel.getName()
+                + ", dictionary size: " + this.size());
+        return interned;
+    }
+
+    /**
+     * Load the dictionary from a json array of names, the position of each name
+     * is its id. If the file does not exist an empty dictionary is returned.
+     *
+     * @param path
+     * @return NameDictionary
+     * @throws Exception
+     */
+    public static NameDictionary load(Path path) throws Exception {
+        NameDictionary nameDictionary = new NameDictionary();
+        if (Files.exists(path)) {
+            JSONArray names = new JSONArray(Files.readString(path));
+            for (int i = 0; i < names.length(); i++) {
+                nameDictionary.idOf(names.getString(i));
+            }
+            logger.debug("NameDictionary@load() -> Loaded " + nameDictionary.size() + " names from " + path);
+        }
+        return nameDictionary;
+    }
+
+    /**
+     * Persist the dictionary as a json array of names
+     *
+     * @param path
+     * @throws Exception
+     */
+    public synchronized void save(Path path) throws Exception {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.writeString(path, new JSONArray(this.names).toString());
+    }
+
+}
@@ -3,14 +3,25 @@ package org.utils;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.EcoreResourceFactoryImpl;
 import org.eclipse.epsilon.emc.emf.EmfModel;
 import org.eclipse.epsilon.eol.exceptions.models.EolModelLoadingException;
 
@@ -88,6 +99,66 @@ public class Utils {
         return emfModel;
     }
 
+    /**
+     * Load a metamodel and the metamodels it refers to (e.g. aadl2_inst.ecore and
+     * aadl2.ecore) in the global package registry, so that models can be created
+     * without loading the metamodel files every time
+     * 
+     * @param metaModelPath
+     * @return the nsURIs of the registered packages
+     */
+    public static List<String> registerMetamodel(String metaModelPath) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore",
+                new EcoreResourceFactoryImpl());
+        resourceSet.getResource(URI.createFileURI(new File(metaModelPath).getAbsolutePath()), true);
+        // load the referenced metamodels in the same resource set
+        EcoreUtil.resolveAll(resourceSet);
+
+        List<String> nsURIs = new ArrayList<>();
+        List<EPackage> ePackages = new ArrayList<>();
+        for (Resource resource : resourceSet.getResources()) {
+            for (EObject eObject : resource.getContents()) {
+                if (eObject instanceof EPackage) {
+                    ePackages.add((EPackage) eObject);
+                }
+            }
+        }
+        while (!ePackages.isEmpty()) {
+            EPackage ePackage = ePackages.remove(ePackages.size() - 1);
+            EPackage.Registry.INSTANCE.put(ePackage.getNsURI(), ePackage);
+            nsURIs.add(ePackage.getNsURI());
+            ePackages.addAll(ePackage.getESubpackages());
+        }
+        return nsURIs;
+    }
+
+    /**
+     * Method that allow to create a EmfModel whose metamodels are already
+     * registered, see {@link #registerMetamodel}
+     * 
+     * @param name            the name of the model that will be create
+     * @param modelURI
+     * @param metaModelURIs   nsURIs of the registered metamodels
+     * @param readOnLoad
+     * @param storeOnDisposal
+     * @return EmfModel
+     * @throws EolModelLoadingException
+     */
+    public static EmfModel createEmfModel(String name, String modelURI, List<String> metaModelURIs,
+            boolean readOnLoad, boolean storeOnDisposal) throws EolModelLoadingException {
+
+        EmfModel emfModel = new EmfModel();
+        emfModel.setName(name);
+        emfModel.setModelFile(modelURI);
+        emfModel.setMetamodelUris(metaModelURIs);
+        emfModel.setReadOnLoad(readOnLoad);
+        emfModel.setStoredOnDisposal(storeOnDisposal);
+        emfModel.load();
+
+        return emfModel;
+    }
+
     /**
      * Get as input a list of string[] and write them on a specified csv row by row
      * 
@@ -101,7 +172,7 @@ public class Utils {
         Path path = Paths.get(folderPath);
         // create folder if not already exists
         if (!Files.exists(path)) {
-            Files.createDirectory(path);
+            Files.createDirectories(path);
         }
         Path filePath = path.resolve(fileName);
 
@@ -128,6 +199,31 @@ public class Utils {
 
     }
 
+    /**
+     * Compute the SHA-256 hash of the file content, used to detect unchanged
+     * sources
+     * 
+     * @param path
+     * @return the hash as hexadecimal string
+     * @throws Exception
+     */
+    public static String sha256(Path path) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Compute the SHA-256 hash of a text
+     * 
+     * @param text
+     * @return the hash as hexadecimal string
+     * @throws Exception
+     */
+    public static String sha256(String text) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
     /**
      * This method take in input a 2dArray and print it in console
      * 